@@ -0,0 +1,112 @@
+package org.service.loadgen;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Blocking HTTP client for the DropBlocks upload/download endpoints, meant to be called from virtual threads.
+public class DropBlocksClient {
+
+    private static final int PAYLOAD_CHUNK = 1024 * 1024;
+    private static final int ID_POOL_SIZE = 16384;
+
+    private final HttpClient http;
+    private final String baseUrl;
+    private final Duration timeout;
+    // Random bytes reused for every upload body so payload generation doesn't dominate the client's CPU.
+    private final byte[] payload = new byte[PAYLOAD_CHUNK];
+    // Ring of recently uploaded file IDs that downloads pick from.
+    private final AtomicReferenceArray<String> ids = new AtomicReferenceArray<>(ID_POOL_SIZE);
+    private final AtomicLong idCount = new AtomicLong();
+    private final AtomicLong idsStored = new AtomicLong();
+
+    public DropBlocksClient(String baseUrl, Duration timeout) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.timeout = timeout;
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+        ThreadLocalRandom.current().nextBytes(payload);
+    }
+
+    public boolean hasFiles() {
+        return idsStored.get() > 0;
+    }
+
+    // Uploads size bytes as a multipart form, like `curl -F file=@...`. Returns the number of bytes sent.
+    public long upload(long size) throws IOException, InterruptedException {
+        String boundary = "----loadgen" + UUID.randomUUID().toString().replace("-", "");
+        String fileName = "loadgen-" + UUID.randomUUID() + ".bin";
+        byte[] head = ("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"" + fileName + "\"\r\n"
+                + "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.UTF_8);
+        byte[] tail = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8);
+
+        List<HttpRequest.BodyPublisher> body = new ArrayList<>();
+        body.add(HttpRequest.BodyPublishers.ofByteArray(head));
+        for (long remaining = size; remaining > 0; remaining -= PAYLOAD_CHUNK) {
+            body.add(HttpRequest.BodyPublishers.ofByteArray(payload, 0, (int) Math.min(remaining, PAYLOAD_CHUNK)));
+        }
+        body.add(HttpRequest.BodyPublishers.ofByteArray(tail));
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/upload"))
+                .timeout(timeout)
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.concat(body.toArray(new HttpRequest.BodyPublisher[0])))
+                .build();
+        HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("Upload failed with HTTP " + response.statusCode() + ": " + response.body());
+        }
+        String location = response.body().trim();
+        int slash = location.lastIndexOf('/');
+        if (slash < 0 || slash == location.length() - 1) {
+            throw new IOException("Unexpected upload response: " + location);
+        }
+        long slot = idCount.getAndIncrement();
+        ids.set((int) (slot % ID_POOL_SIZE), location.substring(slash + 1));
+        idsStored.incrementAndGet();
+        return size;
+    }
+
+    // Downloads a random previously uploaded file and discards the body. Returns the number of bytes received.
+    public long downloadRandom() throws IOException, InterruptedException {
+        int known = (int) Math.min(idCount.get(), ID_POOL_SIZE);
+        String id = null;
+        if (known > 0) {
+            // A claimed slot can still be empty while its upload finishes, so walk on to the next filled one.
+            int start = ThreadLocalRandom.current().nextInt(known);
+            for (int i = 0; i < known && id == null; i++) {
+                id = ids.get((start + i) % known);
+            }
+        }
+        if (id == null) {
+            throw new IllegalStateException("No uploaded files to download");
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/download/" + id))
+                .timeout(timeout)
+                .GET()
+                .build();
+        HttpResponse<InputStream> response = http.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream body = response.body()) {
+            long received = body.transferTo(OutputStream.nullOutputStream());
+            if (response.statusCode() != 200) {
+                throw new IOException("Download of " + id + " failed with HTTP " + response.statusCode());
+            }
+            return received;
+        }
+    }
+}
@@ -0,0 +1,444 @@
+package org.service.loadgen;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Drives a mix of uploads and downloads against a DropBlocks server and reports throughput and latency.
+//
+// Open loop (--mode=open) issues requests on a fixed schedule regardless of how fast the server answers, and
+// measures latency from when each request was *meant* to start, so a stalled server can't hide its backlog.
+// Closed loop (--mode=closed) runs a fixed number of clients that each wait for a response, then think, then
+// send again. Given --interval, its corrected latencies back-fill the requests a slow response prevented;
+// without it there is no schedule to correct against, so latencies are reported as raw.
+//
+// Passing a comma-separated list to --rate or --concurrency runs one step per value, which makes it easy to
+// see where throughput stops tracking the offered load and tail latency takes off. The summary flags a step as
+// saturated when, in open loop, it fell behind the offered rate or dropped arrivals, and in closed loop, adding
+// clients raised throughput by under 10% while p99 grew.
+public class LoadGenerator {
+
+    private static final String USAGE = String.join("\n",
+            "Usage: java -jar drop_blocks_loadgen.jar [options]",
+            "  --url=URL               DropBlocks base URL (default http://localhost:8080)",
+            "  --mode=open|closed      open: fixed arrival rate; closed: fixed number of clients (default closed)",
+            "  --rate=N[,N...]         open loop: requests per second, one step per value (default 50)",
+            "  --concurrency=N[,N...]  closed loop: concurrent clients, one step per value (default 16)",
+            "  --duration=D            measured time per step, e.g. 30s, 5m, 2h (default 60s)",
+            "  --warmup=D              unmeasured time before each step (default 10s)",
+            "  --upload-ratio=F        fraction of requests that are uploads, 0..1 (default 0.2)",
+            "  --sizes=SPEC            upload sizes: SIZE, fixed:SIZE, uniform:MIN-MAX, lognormal:MEDIAN:SIGMA",
+            "                          (default lognormal:256k:1.0; sizes accept k/m/g)",
+            "  --think=SPEC            closed loop think time: none, D, fixed:D, exp:MEAN, uniform:MIN-MAX (default none)",
+            "  --interval=D            closed loop: how often each client is meant to send, for latency correction;",
+            "                          without it closed-loop latencies are reported as uncorrected \"raw\" values",
+            "  --preload=N             files uploaded before the first step so downloads have targets (default 20)",
+            "  --max-inflight=N        open loop cap on outstanding requests; excess arrivals are dropped and counted",
+            "                          separately, not in the latencies (default 10000)",
+            "  --timeout=D             per-request timeout (default 30s)",
+            "  --report-every=D        progress line interval, 0 to disable (default 5s)",
+            "With several steps, the summary marks a step saturated when it fell behind the offered rate or dropped",
+            "arrivals (open loop), or when more clients raised throughput by under 10% while p99 grew (closed loop).");
+
+    private final String url;
+    private final boolean openLoop;
+    private final long[] steps;
+    private final long durationNanos;
+    private final long warmupNanos;
+    private final double uploadRatio;
+    private final Workload.SizeDistribution sizes;
+    private final Workload.ThinkTime think;
+    private final long expectedIntervalMicros;
+    // False for closed loop without --interval, where there is nothing to correct against.
+    private final boolean corrected;
+    private final int preload;
+    private final int maxInFlight;
+    private final long reportEveryNanos;
+    private final DropBlocksClient client;
+
+    enum Op { UPLOAD, DOWNLOAD }
+
+    // Counters for one operation type within one phase.
+    static class OpStats {
+        final LatencyHistogram corrected = new LatencyHistogram();
+        final LatencyHistogram service = new LatencyHistogram();
+        final LongAdder ops = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+    }
+
+    static class PhaseStats {
+        final Map<Op, OpStats> byOp = new HashMap<>();
+        final LongAdder completed = new LongAdder();
+        final LongAdder dropped = new LongAdder();
+        volatile String lastError;
+
+        PhaseStats() {
+            for (Op op : Op.values()) {
+                byOp.put(op, new OpStats());
+            }
+        }
+    }
+
+    record StepResult(long target, double throughput, long p99Micros, long errors, long dropped) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if ("--help".equals(arg) || "-h".equals(arg)) {
+                System.out.println(USAGE);
+                return;
+            }
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                System.err.println("Unrecognized argument: " + arg);
+                System.err.println(USAGE);
+                System.exit(2);
+            }
+            int eq = arg.indexOf('=');
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+
+        LoadGenerator generator;
+        try {
+            generator = new LoadGenerator(options);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid option: " + e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+        generator.run();
+    }
+
+    LoadGenerator(Map<String, String> options) {
+        Map<String, String> opts = new HashMap<>(options);
+        this.url = take(opts, "url", "http://localhost:8080");
+        String mode = take(opts, "mode", "closed").toLowerCase(Locale.ROOT);
+        if (!mode.equals("open") && !mode.equals("closed")) {
+            throw new IllegalArgumentException("--mode must be 'open' or 'closed'");
+        }
+        this.openLoop = mode.equals("open");
+        // Options that only make sense in the other mode are rejected rather than silently ignored.
+        String rate = takeFor(opts, "rate", "50", openLoop);
+        String concurrency = takeFor(opts, "concurrency", "16", !openLoop);
+        this.steps = parseSteps(openLoop ? rate : concurrency);
+        this.durationNanos = positive("duration", Workload.parseDurationNanos(take(opts, "duration", "60s")));
+        this.warmupNanos = Workload.parseDurationNanos(take(opts, "warmup", "10s"));
+        this.uploadRatio = Double.parseDouble(take(opts, "upload-ratio", "0.2"));
+        if (uploadRatio < 0 || uploadRatio > 1) {
+            throw new IllegalArgumentException("--upload-ratio must be between 0 and 1");
+        }
+        this.sizes = Workload.parseSizes(take(opts, "sizes", "lognormal:256k:1.0"));
+        this.think = Workload.parseThinkTime(takeFor(opts, "think", "none", !openLoop));
+        String interval = takeFor(opts, "interval", null, !openLoop);
+        // Each client sends after a response *and* a think time, so the think time alone is not the interval a
+        // request was due at; defaulting to it would back-fill samples for every ordinary response.
+        this.expectedIntervalMicros = interval != null
+                ? positive("interval", Workload.parseDurationNanos(interval)) / 1_000 : 0;
+        this.corrected = openLoop || expectedIntervalMicros > 0;
+        this.preload = (int) nonNegative("preload", parseCount("preload", take(opts, "preload", "20")));
+        this.maxInFlight = (int) positive("max-inflight",
+                parseCount("max-inflight", takeFor(opts, "max-inflight", "10000", openLoop)));
+        Duration timeout = Duration.ofNanos(positive("timeout",
+                Workload.parseDurationNanos(take(opts, "timeout", "30s"))));
+        this.reportEveryNanos = Workload.parseDurationNanos(take(opts, "report-every", "5s"));
+        if (!opts.isEmpty()) {
+            throw new IllegalArgumentException("unknown option(s) " + opts.keySet());
+        }
+        this.client = new DropBlocksClient(url, timeout);
+    }
+
+    private static String take(Map<String, String> opts, String key, String defaultValue) {
+        String value = opts.remove(key);
+        return value != null ? value : defaultValue;
+    }
+
+    private static String takeFor(Map<String, String> opts, String key, String defaultValue, boolean applies) {
+        if (!applies && opts.containsKey(key)) {
+            throw new IllegalArgumentException("--" + key + " does not apply to this --mode");
+        }
+        return take(opts, key, defaultValue);
+    }
+
+    private static long parseCount(String key, String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--" + key + " must be a whole number: " + value);
+        }
+    }
+
+    private static long positive(String key, long value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException("--" + key + " must be greater than zero");
+        }
+        return value;
+    }
+
+    private static long nonNegative(String key, long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("--" + key + " must not be negative");
+        }
+        return value;
+    }
+
+    private static long[] parseSteps(String spec) {
+        String[] parts = spec.split(",");
+        long[] values = new long[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            try {
+                values[i] = Long.parseLong(parts[i].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("step values must be whole numbers: " + spec);
+            }
+            if (values[i] <= 0) {
+                throw new IllegalArgumentException("step values must be positive");
+            }
+        }
+        return values;
+    }
+
+    void run() throws InterruptedException {
+        System.out.println("DropBlocks load generator against " + url);
+        System.out.println("Mode: " + (openLoop ? "open loop" : "closed loop")
+                + ", upload ratio " + uploadRatio
+                + ", " + fmtDuration(durationNanos) + " per step after " + fmtDuration(warmupNanos) + " warmup");
+        if (!openLoop && expectedIntervalMicros == 0) {
+            System.out.println("Note: no --interval, so closed-loop latencies are not corrected"
+                    + " for coordinated omission and are labelled \"raw\".");
+        }
+
+        if (uploadRatio < 1 && preload > 0) {
+            System.out.println("Preloading " + preload + " files...");
+            int failures = 0;
+            for (int i = 0; i < preload; i++) {
+                try {
+                    client.upload(sizes.next());
+                } catch (Exception e) {
+                    failures++;
+                    System.err.println("Preload upload failed: " + e.getMessage());
+                }
+            }
+            if (failures == preload) {
+                System.err.println("Every preload upload failed; is the server running at " + url + "?");
+                System.exit(1);
+            }
+        }
+
+        List<StepResult> results = new ArrayList<>();
+        for (long step : steps) {
+            String label = openLoop ? step + " req/s" : step + " clients";
+            if (warmupNanos > 0) {
+                System.out.println();
+                System.out.println("Warming up at " + label + "...");
+                runPhase(step, warmupNanos, new PhaseStats());
+            }
+            System.out.println();
+            System.out.println("Measuring at " + label + "...");
+            PhaseStats stats = new PhaseStats();
+            long elapsed = runPhase(step, durationNanos, stats);
+            results.add(report(step, elapsed, stats));
+        }
+
+        if (results.size() > 1) {
+            printSummary(results);
+        }
+    }
+
+    // Runs one phase and returns its wall-clock time, including draining requests still in flight at the end.
+    private long runPhase(long step, long phaseNanos, PhaseStats stats) throws InterruptedException {
+        long start = System.nanoTime();
+        long deadline = start + phaseNanos;
+        Thread reporter = startReporter(stats, start, deadline);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            if (openLoop) {
+                runOpenLoop(executor, step, start, deadline, stats);
+            } else {
+                for (int i = 0; i < step; i++) {
+                    executor.submit(() -> runClosedLoopClient(deadline, stats));
+                }
+            }
+        }
+        if (reporter != null) {
+            reporter.interrupt();
+            reporter.join();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private void runOpenLoop(ExecutorService executor, long rate, long start, long deadline, PhaseStats stats) {
+        AtomicInteger inFlight = new AtomicInteger();
+        double periodNanos = 1_000_000_000.0 / rate;
+        for (long i = 0; ; i++) {
+            long intended = start + (long) (i * periodNanos);
+            if (intended - deadline >= 0) {
+                return;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            if (inFlight.incrementAndGet() > maxInFlight) {
+                inFlight.decrementAndGet();
+                // Dropped arrivals were never sent, so they have no latency; they are reported as a count and
+                // mark the step saturated instead.
+                stats.dropped.increment();
+                continue;
+            }
+            executor.submit(() -> {
+                try {
+                    execute(intended, stats, -1);
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            });
+        }
+    }
+
+    private void runClosedLoopClient(long deadline, PhaseStats stats) {
+        while (System.nanoTime() - deadline < 0) {
+            execute(System.nanoTime(), stats, expectedIntervalMicros);
+            long pause = think.nextNanos();
+            if (pause > 0) {
+                LockSupport.parkNanos(pause);
+            }
+        }
+    }
+
+    // intendedStart is when the request should have been sent; for open loop it can be well before now.
+    private void execute(long intendedStart, PhaseStats stats, long expectedIntervalMicros) {
+        Op op = pickOp();
+        OpStats opStats = stats.byOp.get(op);
+        long sent = System.nanoTime();
+        try {
+            long bytes = op == Op.UPLOAD ? client.upload(sizes.next()) : client.downloadRandom();
+            long done = System.nanoTime();
+            long serviceMicros = (done - sent) / 1_000;
+            opStats.service.record(serviceMicros);
+            if (expectedIntervalMicros >= 0) {
+                opStats.corrected.recordWithExpectedInterval(serviceMicros, expectedIntervalMicros);
+            } else {
+                opStats.corrected.record((done - intendedStart) / 1_000);
+            }
+            opStats.ops.increment();
+            opStats.bytes.add(bytes);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            opStats.errors.increment();
+        } catch (Exception e) {
+            opStats.errors.increment();
+            stats.lastError = e.toString();
+        }
+        stats.completed.increment();
+    }
+
+    private Op pickOp() {
+        return !client.hasFiles() || ThreadLocalRandom.current().nextDouble() < uploadRatio ? Op.UPLOAD : Op.DOWNLOAD;
+    }
+
+    private Thread startReporter(PhaseStats stats, long start, long deadline) {
+        if (reportEveryNanos <= 0) {
+            return null;
+        }
+        return Thread.ofPlatform().daemon().name("loadgen-reporter").start(() -> {
+            long last = 0;
+            long lastTime = start;
+            while (true) {
+                LockSupport.parkNanos(reportEveryNanos);
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                long now = System.nanoTime();
+                long completed = stats.completed.sum();
+                long errors = stats.byOp.get(Op.UPLOAD).errors.sum() + stats.byOp.get(Op.DOWNLOAD).errors.sum();
+                System.out.printf(Locale.ROOT, "  [%s] %.1f req/s, %d done, %d errors, %d dropped%s%n",
+                        fmtDuration(Math.min(now, deadline) - start),
+                        (completed - last) * 1e9 / (now - lastTime), completed, errors, stats.dropped.sum(),
+                        now - deadline > 0 ? " (draining)" : "");
+                last = completed;
+                lastTime = now;
+            }
+        });
+    }
+
+    private StepResult report(long step, long elapsedNanos, PhaseStats stats) {
+        double seconds = elapsedNanos / 1e9;
+        LatencyHistogram all = new LatencyHistogram();
+        long totalOps = 0;
+        long totalErrors = 0;
+        String p = corrected ? "p" : "raw p";
+        System.out.printf(Locale.ROOT, "%-9s %9s %9s %9s %8s | %10s %10s %10s %10s %10s %10s | %9s %9s%n",
+                "op", "ok", "errors", "req/s", "MiB/s",
+                p + "50", p + "90", p + "99", p + "99.9", p + "99.99", corrected ? "max" : "raw max",
+                "svc p50", "svc p99");
+        for (Op op : Op.values()) {
+            OpStats s = stats.byOp.get(op);
+            long ops = s.ops.sum();
+            totalOps += ops;
+            totalErrors += s.errors.sum();
+            System.out.printf(Locale.ROOT, "%-9s %9d %9d %9.1f %8.2f | %10s %10s %10s %10s %10s %10s | %9s %9s%n",
+                    op.name().toLowerCase(Locale.ROOT), ops, s.errors.sum(), ops / seconds,
+                    s.bytes.sum() / seconds / (1024 * 1024),
+                    fmtMicros(s.corrected.percentile(50)), fmtMicros(s.corrected.percentile(90)),
+                    fmtMicros(s.corrected.percentile(99)), fmtMicros(s.corrected.percentile(99.9)),
+                    fmtMicros(s.corrected.percentile(99.99)), fmtMicros(s.corrected.max()),
+                    fmtMicros(s.service.percentile(50)), fmtMicros(s.service.percentile(99)));
+        }
+        // Corrected latencies are the headline numbers; "svc" columns are raw send-to-response times.
+        long p99 = Math.max(stats.byOp.get(Op.UPLOAD).corrected.percentile(99),
+                stats.byOp.get(Op.DOWNLOAD).corrected.percentile(99));
+        double throughput = totalOps / seconds;
+        System.out.printf(Locale.ROOT, "total     %9d %9d %9.1f   over %.1fs%s%n", totalOps, totalErrors, throughput,
+                seconds, stats.dropped.sum() > 0 ? ", " + stats.dropped.sum() + " arrivals dropped (not in latencies)" : "");
+        if (stats.lastError != null) {
+            System.out.println("Last error: " + stats.lastError);
+        }
+        return new StepResult(step, throughput, p99, totalErrors, stats.dropped.sum());
+    }
+
+    private void printSummary(List<StepResult> results) {
+        System.out.println();
+        System.out.println("Summary");
+        System.out.printf(Locale.ROOT, "%12s %12s %12s %9s %9s%n",
+                openLoop ? "offered/s" : "clients", "achieved/s", corrected ? "p99" : "raw p99", "errors", "dropped");
+        StepResult previous = null;
+        for (StepResult r : results) {
+            boolean saturated;
+            if (openLoop) {
+                // The server is saturated once it can no longer keep up with the offered rate.
+                saturated = r.throughput() < r.target() * 0.95 || r.dropped() > 0;
+            } else {
+                // More clients only added queueing: throughput barely moved while the tail got longer.
+                saturated = previous != null && r.target() > previous.target()
+                        && r.throughput() < previous.throughput() * 1.10
+                        && r.p99Micros() > previous.p99Micros() * 1.10;
+            }
+            previous = r;
+            System.out.printf(Locale.ROOT, "%12d %12.1f %12s %9d %9d%s%n", r.target(), r.throughput(),
+                    fmtMicros(r.p99Micros()), r.errors(), r.dropped(), saturated ? "  <- saturated" : "");
+        }
+    }
+
+    private static String fmtMicros(long micros) {
+        if (micros < 1_000) {
+            return micros + "us";
+        } else if (micros < 1_000_000) {
+            return String.format(Locale.ROOT, "%.2fms", micros / 1e3);
+        }
+        return String.format(Locale.ROOT, "%.2fs", micros / 1e6);
+    }
+
+    private static String fmtDuration(long nanos) {
+        return String.format(Locale.ROOT, "%.1fs", nanos / 1e9);
+    }
+}
@@ -0,0 +1,198 @@
+package org.service.loadgen;
+
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+// File size distributions and think times, parsed from the command line.
+public class Workload {
+
+    public interface SizeDistribution {
+        long next();
+    }
+
+    public interface ThinkTime {
+        long nextNanos();
+
+        long meanNanos();
+    }
+
+    // fixed:SIZE (or just SIZE), uniform:MIN-MAX, lognormal:MEDIAN:SIGMA. Sizes accept k/m/g suffixes.
+    public static SizeDistribution parseSizes(String spec) {
+        String[] parts = spec.split(":", -1);
+        switch (parts[0].toLowerCase(Locale.ROOT)) {
+            case "fixed": {
+                checkParts(spec, parts, 2, "fixed:SIZE");
+                long size = positiveSize(spec, parseSize(parts[1]));
+                return () -> size;
+            }
+            case "uniform": {
+                checkParts(spec, parts, 2, "uniform:MIN-MAX");
+                String[] range = splitRange(spec, parts[1], "uniform:MIN-MAX");
+                long min = positiveSize(spec, parseSize(range[0]));
+                long max = parseSize(range[1]);
+                checkRange(spec, min, max);
+                return () -> ThreadLocalRandom.current().nextLong(min, max + 1);
+            }
+            case "lognormal": {
+                checkParts(spec, parts, 3, "lognormal:MEDIAN:SIGMA");
+                long median = parseSize(parts[1]);
+                double sigma;
+                try {
+                    sigma = Double.parseDouble(parts[2]);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("invalid sigma in '" + spec + "', expected lognormal:MEDIAN:SIGMA");
+                }
+                if (median <= 0 || sigma < 0) {
+                    throw new IllegalArgumentException("lognormal needs a positive median and non-negative sigma: "
+                            + spec);
+                }
+                double mu = Math.log(median);
+                return () -> Math.max(1, Math.round(Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian())));
+            }
+            default: {
+                long size = positiveSize(spec, parseSize(spec));
+                return () -> size;
+            }
+        }
+    }
+
+    // none (or 0), fixed:DURATION (or just DURATION), exp:MEAN, uniform:MIN-MAX.
+    public static ThinkTime parseThinkTime(String spec) {
+        String[] parts = spec.split(":", -1);
+        switch (parts[0].toLowerCase(Locale.ROOT)) {
+            case "none":
+                checkParts(spec, parts, 1, "none");
+                return fixed(0);
+            case "fixed":
+                checkParts(spec, parts, 2, "fixed:DURATION");
+                return fixed(parseDurationNanos(parts[1]));
+            case "exp": {
+                checkParts(spec, parts, 2, "exp:MEAN");
+                long mean = parseDurationNanos(parts[1]);
+                return new ThinkTime() {
+                    @Override
+                    public long nextNanos() {
+                        return (long) (-mean * Math.log(1 - ThreadLocalRandom.current().nextDouble()));
+                    }
+
+                    @Override
+                    public long meanNanos() {
+                        return mean;
+                    }
+                };
+            }
+            case "uniform": {
+                checkParts(spec, parts, 2, "uniform:MIN-MAX");
+                String[] range = splitRange(spec, parts[1], "uniform:MIN-MAX");
+                long min = parseDurationNanos(range[0]);
+                long max = parseDurationNanos(range[1]);
+                checkRange(spec, min, max);
+                return new ThinkTime() {
+                    @Override
+                    public long nextNanos() {
+                        return ThreadLocalRandom.current().nextLong(min, max + 1);
+                    }
+
+                    @Override
+                    public long meanNanos() {
+                        return (min + max) / 2;
+                    }
+                };
+            }
+            default:
+                return fixed(parseDurationNanos(spec));
+        }
+    }
+
+    private static void checkParts(String spec, String[] parts, int expected, String format) {
+        if (parts.length != expected) {
+            throw new IllegalArgumentException("malformed '" + spec + "', expected " + format);
+        }
+    }
+
+    private static String[] splitRange(String spec, String range, String format) {
+        String[] bounds = range.split("-", -1);
+        if (bounds.length != 2) {
+            throw new IllegalArgumentException("malformed '" + spec + "', expected " + format);
+        }
+        return bounds;
+    }
+
+    private static long positiveSize(String spec, long size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("upload sizes must be greater than zero: " + spec);
+        }
+        return size;
+    }
+
+    private static void checkRange(String spec, long min, long max) {
+        if (min > max) {
+            throw new IllegalArgumentException("range minimum is larger than its maximum: " + spec);
+        }
+    }
+
+    private static ThinkTime fixed(long nanos) {
+        return new ThinkTime() {
+            @Override
+            public long nextNanos() {
+                return nanos;
+            }
+
+            @Override
+            public long meanNanos() {
+                return nanos;
+            }
+        };
+    }
+
+    // Rejects negative values; callers that need a positive size check for zero themselves.
+    public static long parseSize(String value) {
+        String v = value.trim().toLowerCase(Locale.ROOT);
+        long multiplier = 1;
+        if (v.endsWith("k")) {
+            multiplier = 1024L;
+        } else if (v.endsWith("m")) {
+            multiplier = 1024L * 1024;
+        } else if (v.endsWith("g")) {
+            multiplier = 1024L * 1024 * 1024;
+        }
+        if (multiplier != 1) {
+            v = v.substring(0, v.length() - 1);
+        }
+        return nonNegative(value, parseNumber(value, v, "size")) * multiplier;
+    }
+
+    // Accepts ms, s, m and h suffixes; a bare number is seconds. Rejects negative durations.
+    public static long parseDurationNanos(String value) {
+        String v = value.trim().toLowerCase(Locale.ROOT);
+        long unit = 1_000_000_000L;
+        if (v.endsWith("ms")) {
+            unit = 1_000_000L;
+            v = v.substring(0, v.length() - 2);
+        } else if (v.endsWith("s")) {
+            v = v.substring(0, v.length() - 1);
+        } else if (v.endsWith("m")) {
+            unit = 60_000_000_000L;
+            v = v.substring(0, v.length() - 1);
+        } else if (v.endsWith("h")) {
+            unit = 3_600_000_000_000L;
+            v = v.substring(0, v.length() - 1);
+        }
+        return nonNegative(value, parseNumber(value, v, "duration")) * unit;
+    }
+
+    private static long parseNumber(String original, String digits, String kind) {
+        try {
+            return Long.parseLong(digits);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid " + kind + " '" + original + "'");
+        }
+    }
+
+    private static long nonNegative(String original, long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("negative value '" + original + "'");
+        }
+        return value;
+    }
+}
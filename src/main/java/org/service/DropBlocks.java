@@ -25,9 +25,11 @@ public class DropBlocks {
     private static final int PORT = 8080; // Default port, can be changed.
     private static final String UPLOAD_PATH = "/upload"; // Endpoint for file uploads
     private static final String DOWNLOAD_PATH_PREFIX = "/download/"; // Prefix for download URLs
+    private static final String FILES_PATH = "/files"; // Endpoint for listing and searching files
     private static final Map<String, Path> uploadedFiles = new HashMap<>(); // Store file paths by unique ID
     private static String STORAGE_DIRECTORY = "uploads"; //  Changed to absolute path
     private static final Map<String, String> fileNames = new HashMap<>(); // Add this line
+    private static final FileIndex fileIndex = new FileIndex(); // Sorted in-memory indexes backing /files
 
     public static void main(String[] args) throws IOException {
         // Create the server.
@@ -36,6 +38,7 @@ public class DropBlocks {
         // Create contexts for handling requests.
         HttpContext uploadContext = server.createContext(UPLOAD_PATH, new UploadHandler(fileNames)); // Pass fileNames
         HttpContext downloadContext = server.createContext(DOWNLOAD_PATH_PREFIX, new DownloadHandler(fileNames)); // Pass fileNames
+        HttpContext filesContext = server.createContext(FILES_PATH, new ListHandler(fileIndex));
 
         //set the executor
         server.setExecutor(Executors.newFixedThreadPool(10)); // Use a thread pool
@@ -62,6 +65,7 @@ public class DropBlocks {
         System.out.println("DropBlocks server is running on port " + PORT);
         System.out.println("Upload endpoint: " + UPLOAD_PATH);
         System.out.println("Download prefix: " + DOWNLOAD_PATH_PREFIX);
+        System.out.println("Listing endpoint: " + FILES_PATH);
         System.out.println("Storage directory: " + STORAGE_DIRECTORY);
     }
 
@@ -84,6 +88,7 @@ public class DropBlocks {
                     String originalFileName = fileName.substring(separatorIndex + 1);
                     fileNames.put(fileId, originalFileName); // Extract the filename
                     uploadedFiles.put(fileId, filePath);
+                    indexFile(fileId, originalFileName, filePath, file.lastModified(), null);
                     System.out.println("Loaded file: " + fileName + " with ID: " + fileId);
                 } else {
                     // Handle files without the separator.  This is important for files uploaded before the change.
@@ -91,6 +96,7 @@ public class DropBlocks {
                     Path filePath = Paths.get(STORAGE_DIRECTORY, fileName);
                     uploadedFiles.put(fileId, filePath);
                     fileNames.put(fileId, fileName);
+                    indexFile(fileId, fileName, filePath, file.lastModified(), null);
                     System.out.println("Loaded file: " + fileName + " with ID: " + fileId);
                 }
             }
@@ -187,6 +193,8 @@ public class DropBlocks {
             // Store the file path and its ID.
             uploadedFiles.put(fileId, filePath);
             fileNames.put(fileId, fileName); //store
+            indexFile(fileId, fileName, filePath, System.currentTimeMillis(),
+                    exchange.getRequestHeaders().getFirst("Content-Type"));
             // Construct the download URL.
             String downloadUrl = DOWNLOAD_PATH_PREFIX + fileId;
             // Send the response with the download URL.
@@ -233,6 +241,7 @@ public class DropBlocks {
                         Files.copy(partInputStream, filePath);
                         uploadedFiles.put(fileId, filePath);
                         fileNames.put(fileId, fileName);
+                        indexFile(fileId, fileName, filePath, System.currentTimeMillis(), part.getContentType());
                         String downloadUrl = DOWNLOAD_PATH_PREFIX + fileId;
                         sendResponse(exchange, 200, downloadUrl);
                         return fileName;
@@ -356,6 +365,8 @@ public class DropBlocks {
                         sendResponse(exchange, 500, "Internal Server Error: " + e.getMessage());
                     }
                 } else {
+                    // File was removed from disk behind our back; drop it from the listing too.
+                    fileIndex.remove(fileId);
                     // File not found
                     sendResponse(exchange, 404, "File Not Found");
                 }
@@ -370,6 +381,170 @@ public class DropBlocks {
         }
     }
 
+    // Handler for listing and searching files, served entirely from the in-memory index
+    static class ListHandler implements HttpHandler {
+        private final FileIndex index;
+
+        public ListHandler(FileIndex index) {
+            this.index = index;
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+                sendResponse(exchange, 405, "Method Not Allowed");
+                return;
+            }
+
+            FileIndex.Page page;
+            try {
+                page = index.query(parseQuery(exchange.getRequestURI().getRawQuery()));
+            } catch (IllegalArgumentException e) {
+                sendResponse(exchange, 400, "Bad Request: " + e.getMessage());
+                return;
+            }
+
+            StringBuilder json = new StringBuilder();
+            json.append("{\"files\":[");
+            for (int i = 0; i < page.entries().size(); i++) {
+                FileIndex.Entry entry = page.entries().get(i);
+                if (i > 0) {
+                    json.append(',');
+                }
+                json.append("{\"id\":").append(jsonString(entry.id()))
+                        .append(",\"name\":").append(jsonString(entry.name()))
+                        .append(",\"size\":").append(entry.size())
+                        .append(",\"uploadTime\":").append(entry.uploadTime())
+                        .append(",\"contentType\":").append(jsonString(entry.contentType()))
+                        .append(",\"download\":").append(jsonString(DOWNLOAD_PATH_PREFIX + entry.id()))
+                        .append('}');
+            }
+            json.append("],\"sort\":").append(jsonString(page.order().name().toLowerCase()))
+                    .append(",\"nextCursor\":").append(jsonString(page.nextCursor())).append('}');
+
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            sendResponse(exchange, 200, json.toString());
+        }
+
+        // Supported parameters: sort=name|time, prefix, from, to (epoch millis), minSize, maxSize, type, limit, cursor
+        private FileIndex.Query parseQuery(String rawQuery) {
+            FileIndex.Query query = new FileIndex.Query();
+            if (rawQuery == null || rawQuery.isEmpty()) {
+                return query;
+            }
+            for (String pair : rawQuery.split("&")) {
+                if (pair.isEmpty()) {
+                    continue;
+                }
+                int eq = pair.indexOf('=');
+                String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+                String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+                switch (key) {
+                    case "sort":
+                        if ("name".equalsIgnoreCase(value)) {
+                            query.sort = FileIndex.SortKey.NAME;
+                        } else if ("time".equalsIgnoreCase(value)) {
+                            query.sort = FileIndex.SortKey.TIME;
+                        } else {
+                            throw new IllegalArgumentException("sort must be 'name' or 'time'");
+                        }
+                        break;
+                    case "prefix":
+                        query.namePrefix = value;
+                        break;
+                    case "from":
+                        query.fromTime = parseLong(key, value);
+                        break;
+                    case "to":
+                        query.toTime = parseLong(key, value);
+                        break;
+                    case "minSize":
+                        query.minSize = parseLong(key, value);
+                        break;
+                    case "maxSize":
+                        query.maxSize = parseLong(key, value);
+                        break;
+                    case "type":
+                        query.contentType = value;
+                        break;
+                    case "limit":
+                        query.limit = parseInt(key, value);
+                        break;
+                    case "cursor":
+                        query.cursor = value;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown parameter '" + key + "'");
+                }
+            }
+            return query;
+        }
+
+        private static int parseInt(String key, String value) {
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(key + " must be a number");
+            }
+        }
+
+        private static long parseLong(String key, String value) {
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(key + " must be a number");
+            }
+        }
+
+        private static String jsonString(String value) {
+            if (value == null) {
+                return "null";
+            }
+            StringBuilder sb = new StringBuilder("\"");
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    sb.append('\\').append(c);
+                } else if (c < 0x20 || c > 0x7e) {
+                    // Escape non-ASCII too, since sendResponse writes with the platform charset.
+                    sb.append(String.format("\\u%04x", (int) c));
+                } else {
+                    sb.append(c);
+                }
+            }
+            return sb.append('"').toString();
+        }
+    }
+
+    // Record an uploaded or pre-existing file in the listing index.
+    private static void indexFile(String fileId, String fileName, Path filePath, long uploadTime, String contentType) {
+        long size;
+        try {
+            size = Files.size(filePath);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        // Form encodings describe how the request was sent, not the file (curl --data-binary defaults to
+        // application/x-www-form-urlencoded), so only trust other declared types.
+        String declared = contentType == null ? "" : contentType.toLowerCase();
+        if (declared.isEmpty() || declared.startsWith("multipart/")
+                || declared.startsWith("application/x-www-form-urlencoded")) {
+            try {
+                contentType = Files.probeContentType(filePath);
+            } catch (IOException e) {
+                contentType = null;
+            }
+        } else {
+            // Drop parameters such as "; charset=UTF-8" so filters can match on the bare type.
+            int semicolon = contentType.indexOf(';');
+            if (semicolon >= 0) {
+                contentType = contentType.substring(0, semicolon).trim();
+            }
+        }
+        fileIndex.add(new FileIndex.Entry(fileId, fileName, uploadTime, size, contentType));
+    }
+
     // Helper method to send HTTP responses
     private static void sendResponse(HttpExchange exchange, int statusCode, String response) throws IOException {
         try (OutputStream os = exchange.getResponseBody()) {
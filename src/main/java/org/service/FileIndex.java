@@ -0,0 +1,239 @@
+package org.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+// In-memory secondary indexes over the stored files, so listing and search never touch the storage directory.
+public class FileIndex {
+
+    public static final int DEFAULT_LIMIT = 100;
+    public static final int MAX_LIMIT = 1000;
+    // Upper bound on entries examined per page, so filters the indexes can't narrow (size, type) stay cheap.
+    // A page that hits it may come back short, with a cursor to resume the scan.
+    public static final int MAX_SCAN = 10_000;
+
+    public enum SortKey { NAME, TIME }
+
+    public record Entry(String id, String name, long uploadTime, long size, String contentType) {
+    }
+
+    // Page of results in the given order, plus the cursor to pass back for the next page (null when there are
+    // no more). A short or even empty page with a cursor means the scan limit was reached, not the end.
+    public record Page(List<Entry> entries, SortKey order, String nextCursor) {
+    }
+
+    // Filters for a listing. Null bounds mean "unbounded"; time and size ranges are inclusive. A null sort lets
+    // the query pick the index that bounds it.
+    public static class Query {
+        SortKey sort;
+        String namePrefix;
+        Long fromTime;
+        Long toTime;
+        Long minSize;
+        Long maxSize;
+        String contentType;
+        int limit = DEFAULT_LIMIT;
+        String cursor;
+    }
+
+    // Ties on name or time are broken by id so every entry has a unique position in both indexes.
+    private static final Comparator<Entry> BY_NAME =
+            Comparator.comparing(Entry::name).thenComparing(Entry::id);
+    private static final Comparator<Entry> BY_TIME =
+            Comparator.comparingLong(Entry::uploadTime).thenComparing(Entry::id);
+
+    private final ConcurrentHashMap<String, Entry> byId = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Entry> byName = new ConcurrentSkipListSet<>(BY_NAME);
+    private final ConcurrentSkipListSet<Entry> byTime = new ConcurrentSkipListSet<>(BY_TIME);
+
+    // The sorted sets are updated inside compute so concurrent add/remove of one id can't interleave and leave
+    // an entry listed without its byId mapping.
+    public void add(Entry entry) {
+        byId.compute(entry.id(), (id, previous) -> {
+            if (previous != null) {
+                byName.remove(previous);
+                byTime.remove(previous);
+            }
+            byName.add(entry);
+            byTime.add(entry);
+            return entry;
+        });
+    }
+
+    public void remove(String id) {
+        byId.computeIfPresent(id, (key, entry) -> {
+            byName.remove(entry);
+            byTime.remove(entry);
+            return null;
+        });
+    }
+
+    public Page query(Query query) {
+        int limit = Math.max(1, Math.min(query.limit, MAX_LIMIT));
+        SortKey order = scanOrder(query);
+        Entry after = query.cursor != null ? decodeCursor(order, query.cursor) : null;
+
+        NavigableSet<Entry> range = order == SortKey.TIME ? timeRange(query, after) : nameRange(query, after);
+
+        List<Entry> results = new ArrayList<>(limit);
+        Entry last = null;
+        boolean more = false;
+        int scanned = 0;
+        Iterator<Entry> it = range.iterator();
+        while (it.hasNext()) {
+            if (scanned == MAX_SCAN) {
+                more = true;
+                break;
+            }
+            Entry entry = it.next();
+            // The name index is ordered, so once we leave the prefix nothing further can match.
+            if (order == SortKey.NAME && query.namePrefix != null && !entry.name().startsWith(query.namePrefix)) {
+                break;
+            }
+            boolean match = matches(query, entry);
+            if (match && results.size() == limit) {
+                more = true;
+                break;
+            }
+            scanned++;
+            last = entry;
+            if (match) {
+                results.add(entry);
+            }
+        }
+        return new Page(results, order, more ? encodeCursor(order, last) : null);
+    }
+
+    // An explicit sort is always honoured; the other bound is then just a filter, still capped by MAX_SCAN.
+    // Without one, scan the index that can bound the query: the name index for a prefix, the time index for a
+    // time range, name order otherwise.
+    private static SortKey scanOrder(Query query) {
+        if (query.sort != null) {
+            return query.sort;
+        }
+        boolean timeBound = query.fromTime != null || query.toTime != null;
+        boolean nameBound = query.namePrefix != null && !query.namePrefix.isEmpty();
+        if (timeBound && !nameBound) {
+            return SortKey.TIME;
+        }
+        if (nameBound && !timeBound) {
+            return SortKey.NAME;
+        }
+        return SortKey.NAME;
+    }
+
+    private NavigableSet<Entry> nameRange(Query query, Entry after) {
+        NavigableSet<Entry> range = byName;
+        if (after != null) {
+            range = range.tailSet(after, false);
+        }
+        if (query.namePrefix != null) {
+            // Smallest possible entry with this name: the empty id sorts before every real id.
+            Entry start = new Entry("", query.namePrefix, 0, 0, null);
+            if (after == null || BY_NAME.compare(start, after) > 0) {
+                range = range.tailSet(start, true);
+            }
+        }
+        return range;
+    }
+
+    private NavigableSet<Entry> timeRange(Query query, Entry after) {
+        NavigableSet<Entry> range = byTime;
+        if (after != null) {
+            range = range.tailSet(after, false);
+        }
+        if (query.fromTime != null) {
+            Entry start = new Entry("", "", query.fromTime, 0, null);
+            if (after == null || BY_TIME.compare(start, after) > 0) {
+                range = range.tailSet(start, true);
+            }
+        }
+        if (query.toTime != null && query.toTime < Long.MAX_VALUE) {
+            // Everything strictly before the first instant past the range.
+            Entry end = new Entry("", "", query.toTime + 1, 0, null);
+            long lowest = Math.max(query.fromTime != null ? query.fromTime : Long.MIN_VALUE,
+                    after != null ? after.uploadTime() : Long.MIN_VALUE);
+            if (lowest > query.toTime) {
+                return Collections.emptyNavigableSet();
+            }
+            range = range.headSet(end, false);
+        }
+        return range;
+    }
+
+    private static boolean matches(Query query, Entry entry) {
+        if (query.namePrefix != null && !entry.name().startsWith(query.namePrefix)) {
+            return false;
+        }
+        if (query.fromTime != null && entry.uploadTime() < query.fromTime) {
+            return false;
+        }
+        if (query.toTime != null && entry.uploadTime() > query.toTime) {
+            return false;
+        }
+        if (query.minSize != null && entry.size() < query.minSize) {
+            return false;
+        }
+        if (query.maxSize != null && entry.size() > query.maxSize) {
+            return false;
+        }
+        if (query.contentType != null) {
+            String type = entry.contentType();
+            if (type == null) {
+                return false;
+            }
+            // "image/*" style wildcards match on the primary type.
+            if (query.contentType.endsWith("/*")) {
+                int length = query.contentType.length() - 1;
+                return type.regionMatches(true, 0, query.contentType, 0, length);
+            }
+            return type.equalsIgnoreCase(query.contentType);
+        }
+        return true;
+    }
+
+    // Cursors are opaque to clients: the index scanned and the last entry examined, base64url-encoded.
+    // Name cursors carry the id length-prefixed, since legacy ids can contain any character.
+    private static String encodeCursor(SortKey order, Entry last) {
+        String raw = order == SortKey.TIME
+                ? "t:" + last.uploadTime() + ":" + last.id()
+                : "n:" + last.id().length() + ":" + last.id() + last.name();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Entry decodeCursor(SortKey order, String cursor) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        int first = raw.indexOf(':');
+        int second = first < 0 ? -1 : raw.indexOf(':', first + 1);
+        if (second < 0) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        String kind = raw.substring(0, first);
+        long number;
+        try {
+            number = Long.parseLong(raw.substring(first + 1, second));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        String rest = raw.substring(second + 1);
+        if ("t".equals(kind) && order == SortKey.TIME) {
+            return new Entry(rest, "", number, 0, null);
+        } else if ("n".equals(kind) && order == SortKey.NAME && number >= 0 && number <= rest.length()) {
+            return new Entry(rest.substring(0, (int) number), rest.substring((int) number), 0, 0, null);
+        }
+        throw new IllegalArgumentException("Invalid cursor");
+    }
+}